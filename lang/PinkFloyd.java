@@ -4,7 +4,43 @@
     import mars.*;
     import mars.util.*;
     import mars.mips.instructions.*;
+    import java.io.BufferedOutputStream;
+    import java.io.BufferedReader;
+    import java.io.ByteArrayInputStream;
+    import java.io.BufferedWriter;
+    import java.io.DataInputStream;
+    import java.io.DataOutputStream;
+    import java.io.EOFException;
+    import java.io.File;
+    import java.io.FileInputStream;
+    import java.io.FileOutputStream;
+    import java.io.IOException;
+    import java.io.InputStream;
+    import java.io.InputStreamReader;
+    import java.io.InterruptedIOException;
+    import java.io.OutputStreamWriter;
+    import java.io.Writer;
+    import java.lang.management.ManagementFactory;
+    import java.lang.management.MemoryPoolMXBean;
+    import java.lang.management.MemoryType;
+    import java.nio.ByteBuffer;
+    import java.nio.channels.FileChannel;
+    import java.nio.charset.StandardCharsets;
+    import java.nio.file.Files;
+    import java.nio.file.Paths;
+    import java.nio.file.StandardOpenOption;
+    import java.util.ArrayList;
+    import java.util.List;
+    import java.util.Locale;
     import java.util.Random;
+    import java.util.concurrent.Callable;
+    import java.util.concurrent.ExecutionException;
+    import java.util.concurrent.ExecutorService;
+    import java.util.concurrent.Executors;
+    import java.util.concurrent.Future;
+    import java.util.concurrent.Phaser;
+    import java.util.zip.CRC32;
+    import java.util.zip.CheckedOutputStream;
 /**
  * To create a custom language, you must extend the CustomAssembly abstract class and override its three methods.
  * It must also be part of the mars.mips.instructions.customlangs package.
@@ -220,133 +256,7 @@ public class PinkFloyd extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     Random r = new Random();
-                     int s0 = RegisterFile.getValue(16);
-                     int s1 = RegisterFile.getValue(17);
-                     int s5 = RegisterFile.getValue(21);
-
-                     if (s1 < 2 && s5 == 0) {
-                        s0++;
-                        s1++;
-                        RegisterFile.updateRegister(16, s0);
-                        RegisterFile.updateRegister(17, s1);
-
-                        switch(r.nextInt(6)) {
-                            case 0:
-                                SystemIO.printString("I've got a bike, you can ride it if you like :)\n");
-                                SystemIO.printString("It's got a basket a bell that rings, and things to make it look good :)\n");
-                                SystemIO.printString("I'd give it to you if I could, but I borrowed it :)\n");
-                                break;
-                            case 1:
-                                SystemIO.printString("You're the kind of girl that fits in with my world\n");
-                                SystemIO.printString("I'll give you everything, anything if you want things\n");
-                                break;
-                            case 2:
-                                SystemIO.printString("I know a mouse and he hasn't got a house\n");
-                                SystemIO.printString("I don't know why I call him Gerald\n");
-                                SystemIO.printString("He's getting rather old, but he's a good mouse\n");
-                                break;
-                            case 3:
-                                SystemIO.printString("I really love you and I mean you\n");
-                                SystemIO.printString("The star above you, crystal blue\n");
-                                SystemIO.printString("I wouldn't see you, and I love to\n");
-                                SystemIO.printString("I fly above you, yes I do\n");
-                                break;
-                            case 4:
-                                SystemIO.printString("Lime and limpid green, a second scene, a fight between the blue you once knew\n");
-                                SystemIO.printString("Floating down, the sound resounds around the icy waters underground\n");
-                                break;
-                            case 5:
-                                SystemIO.printString("I want to tell you a story, about a little man, if i can\n");
-                                SystemIO.printString("A gnome named Grimble Crumble; And little gnomes stay in their homes\n");
-                                SystemIO.printString("He had a big adventure, amidst the grass, fresh air at last\n");
-                                SystemIO.printString("And then one day, Hooray!\n");
-                                break;
-                        }
-                        SystemIO.printString("\n\n\n");
-
-                        int s4 = RegisterFile.getValue(20);
-                        int stone = 0;
-                        if (s4 != 0) {stone = s0 - s4;}
-                        if (stone == 10) {SystemIO.printString("stone stone stone stone stone stone stone stone stone stone\nstone stone stone stone stone stone stone stone stone stone\n\n\n");}
-                     } else if (s5 == 0) {
-                        s0++;
-                        s1++;
-                        RegisterFile.updateRegister(16, s0);
-                        RegisterFile.updateRegister(17, s1);
-
-                        switch(r.nextInt(10)) {
-                            case 0:
-                                SystemIO.printString("Remember when you were young?\n");
-                                SystemIO.printString("You shone like the sun\n");
-                                SystemIO.printString("Now there's a look in your eyes\n");
-                                SystemIO.printString("Like black holes in the sky\n");
-                                break;
-                            case 1:
-                                SystemIO.printString("You were caught in the crossfire, Of childhood and stardom\n");
-                                SystemIO.printString("Blown on the steel breeze\n");
-                                SystemIO.printString("Come on you target, for faraway laughter\n");
-                                SystemIO.printString("Come on you stranger, you legend, you martyr, and Shine!\n");
-                                break;
-                            case 2:
-                                SystemIO.printString("You reached for the secret too soon\n");
-                                SystemIO.printString("You cried for the moon\n");
-                                SystemIO.printString("Threatend by shadows at night\n");
-                                SystemIO.printString("And exposed in the light\n");
-                                break;
-                            case 3:
-                                SystemIO.printString("Well, you wore out your welcome, with random precision\n");
-                                SystemIO.printString("Rode on the steel breeze\n");
-                                SystemIO.printString("Come on you raver, you seer of visions,\n");
-                                SystemIO.printString("Come on you painter, you piper, you prisoner, and Shine!\n");
-                                break;
-                            case 4:
-                                SystemIO.printString("Nobody knows where you are, how near or how far\n");
-                                break;
-                            case 5:
-                                SystemIO.printString("Pile on many more layers, and I'll be joining you there\n");
-                                break;
-                            case 6:
-                                SystemIO.printString("And we'll bask in the shadow of yesterday's triumph\n");
-                                SystemIO.printString("Sail on the steel breeze\n");
-                                SystemIO.printString("Come on you boy child, you winner and loser\n");
-                                SystemIO.printString("Come on you miner for truth and delusion, and Shine!\n");
-                                break;
-                            case 7:
-                                SystemIO.printString("So, so you think you can tell\n");
-                                SystemIO.printString("Heaven from Hell?\n");
-                                SystemIO.printString("Blue skies from pain?\n");
-                                SystemIO.printString("Can you tell a green field,\n");
-                                SystemIO.printString("from a cold steel rail?\n");
-                                SystemIO.printString("A smile from a veil?\n");
-                                SystemIO.printString("Do you think you could tell?\n");
-                                break;
-                            case 8:
-                                SystemIO.printString("Did the get you to trade?\n");
-                                SystemIO.printString("Your heroes for ghosts?\n");
-                                SystemIO.printString("Hot ashes for trees?\n");
-                                SystemIO.printString("Hot air for a cool breeze?\n");
-                                SystemIO.printString("Cold comfort for change?\n");
-                                SystemIO.printString("Did you exchange?\n");
-                                SystemIO.printString("A walk on part in the war,\n");
-                                SystemIO.printString("For a lead role in a cage?\n");
-                                break;
-                            case 9:
-                                SystemIO.printString("We're just two lost souls swimming in a fishbowl,\n");
-                                SystemIO.printString("year after year,\n");
-                                SystemIO.printString("running over the same old ground,\n");
-                                SystemIO.printString("what have we found?\n");
-                                SystemIO.printString("The same old fears,\n");
-                                SystemIO.printString("Wish you were here.\n");
-                                break;
-                        }
-                        SystemIO.printString("\n\n\n");
-
-                        int s4 = RegisterFile.getValue(20);
-                        int stone = 0;
-                        if (s4 != 0) {stone = s0 - s4;}
-                        if (stone == 10) {SystemIO.printString("stone stone stone stone stone stone stone stone stone stone\nstone stone stone stone stone stone stone stone stone stone\n\n\n");}
-                     }
+                     perform(Songbite.SYD, statement);
                   }
                }));
         instructionList.add(        // rog
@@ -358,136 +268,7 @@ public class PinkFloyd extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     Random r = new Random();
-                     int s0 = RegisterFile.getValue(16);
-                     int s2 = RegisterFile.getValue(18);
-                     int s3 = RegisterFile.getValue(19);
-                     int gilmie_lead = s3 - s2;
-
-                     if (gilmie_lead < 5) {
-                        s0++;
-                        s2++;
-                        RegisterFile.updateRegister(16, s0);
-                        RegisterFile.updateRegister(18, s2);
-
-                        switch(r.nextInt(12)) {
-                            case 0:
-                                SystemIO.printString("Daddy's flown across the ocean\n");
-                                SystemIO.printString("Leaving just a memory\n");
-                                SystemIO.printString("\n");
-                                break;
-                            case 1:
-                                SystemIO.printString("A snapshot in the family album\n");
-                                SystemIO.printString("Daddy, what else did you leave for me?\n");
-                                SystemIO.printString("\n");
-                                break;
-                            case 2:
-                                SystemIO.printString("Daddy what'd ya leave behind for me?\n");
-                                SystemIO.printString("\n");
-                                break;
-                            case 3:
-                                SystemIO.printString("Overhead the albatross\n");
-                                SystemIO.printString("Hangs motionless upon the air\n");
-                                SystemIO.printString("And deep beneath the rolling waves\n");
-                                SystemIO.printString("In labyrinths of coral caves\n");
-                                SystemIO.printString("The echo of a distant time\n");
-                                SystemIO.printString("Comes willowing across the sand\n");
-                                SystemIO.printString("And everything is green and submarine\n");
-                                break;
-                            case 4:
-                                SystemIO.printString("Strangers passing in the street\n");
-                                SystemIO.printString("By chance, two separate glances meet\n");
-                                SystemIO.printString("And I am you and what I see is me\n");
-                                SystemIO.printString("And do I take you by the hand,\n");
-                                SystemIO.printString("And lead you through the land,\n");
-                                SystemIO.printString("And help me understand the best I can?\n");
-                                break;
-                            case 5:
-                                SystemIO.printString("Tired of lying in the sunshine\n");
-                                SystemIO.printString("Staying home to watch the rain\n");
-                                SystemIO.printString("You are young and life is long\n");
-                                SystemIO.printString("And there is time to kill today\n");
-                                SystemIO.printString("But then one day you find\n");
-                                SystemIO.printString("Ten years have got behind you\n");
-                                SystemIO.printString("No one told you when to run\n");
-                                SystemIO.printString("You missed the starting gun\n");
-                                break;
-                            case 6:
-                                SystemIO.printString("You gotta be crazy, you gotta have a real need\n");
-                                SystemIO.printString("Gotta sleep on your toes, and when you're on the street\n");
-                                SystemIO.printString("Got to be able to pick out the easy meat with your eyes closed\n");
-                                SystemIO.printString("Then moving in silently, downwind and out of sight\n");
-                                SystemIO.printString("You got to strike when the moment is right without thinking\n");
-                                SystemIO.printString("And after a while, you can work on points for style\n");
-                                SystemIO.printString("Like the club tie, and the firm handshake\n");
-                                SystemIO.printString("A certain look in the sky and an easy smile\n");
-                                SystemIO.printString("You have to be trusted by the people that you lie to\n");
-                                SystemIO.printString("So that when they turn their backs on you\n");
-                                SystemIO.printString("You get the chance to put the knife in\n");
-                                break;
-                            case 7:
-                                SystemIO.printString("And when you lose control\n");
-                                SystemIO.printString("You'll reap the harvet you have sown\n");
-                                SystemIO.printString("And as the fear grows\n");
-                                SystemIO.printString("The bad blood slows and turns to stone\n");
-                                SystemIO.printString("And it's too late to lose the weight\n");
-                                SystemIO.printString("You used to need to throw around\n");
-                                SystemIO.printString("So have a good drown, as you go down, all alone\n");
-                                SystemIO.printString("Dragged down by the stone\n");
-                                break;
-                            case 8:
-                                SystemIO.printString("For long you life and high you fly\n");
-                                SystemIO.printString("And smile you'll give and tears you'll cry\n");
-                                SystemIO.printString("And all you touch and all you see\n");
-                                SystemIO.printString("Is all your life will ever be\n");
-                                SystemIO.printString("\n");
-                                SystemIO.printString("Run, rabbit, run\n");
-                                SystemIO.printString("Dig that hole, forget the sun\n");
-                                SystemIO.printString("And when at last the work is done\n");
-                                SystemIO.printString("Don't sit down it's time to dig another one\n");
-                                SystemIO.printString("\n");
-                                SystemIO.printString("For long you life and high you fly\n");
-                                SystemIO.printString("But only if you ride the tide\n");
-                                SystemIO.printString("Balanced on the biggest wave\n");
-                                SystemIO.printString("You race towards an early grave\n");
-                                break;
-                            case 9:
-                                SystemIO.printString("Hey, you\n");
-                                SystemIO.printString("Out there on the road, always doing what you're told, can you help me?\n");
-                                SystemIO.printString("Hey, you\n");
-                                SystemIO.printString("Out there beyond the wall, breaking bottles in the hall, can you help me?\n");
-                                SystemIO.printString("Hey, you, don't tell me there's no hope at all\n");
-                                SystemIO.printString("Together we stand, divided we fall\n");
-                                SystemIO.printString("Hey, you, would you help me to carry the stone?\n");
-                                SystemIO.printString("Open your heart, I'm coming home\n");
-                                break;
-                            case 10:
-                                SystemIO.printString("Through the fisheyed lens of tear stained eyes\n");
-                                SystemIO.printString("I can barely make out the shape of this moment in time\n");
-                                break;
-                            case 11:
-                                SystemIO.printString("Harmlessly passing your time in the grassland away\n");
-                                SystemIO.printString("Only dimly aware of a certain unease in the air\n");
-                                SystemIO.printString("You better watch out! There may be dogs about!\n");
-                                SystemIO.printString("I've looked over Jordan and I've seen things are not what the seem\n");
-                                SystemIO.printString("\n");
-                                SystemIO.printString("What do you get for pretending the danger's not real?\n");
-                                SystemIO.printString("Meek and obedient you follow the leader\n");
-                                SystemIO.printString("Down well trodden corridors into the valley of steel\n");
-                                SystemIO.printString("\n");
-                                SystemIO.printString("What a suprise!\n");
-                                SystemIO.printString("A look of terminal shock in your eyes!\n");
-                                SystemIO.printString("Now things are really what they seem!\n");
-                                SystemIO.printString("No! This is no bad dream!\n");
-                                break;
-                        }
-                        SystemIO.printString("\n\n\n");
-
-                        int s4 = RegisterFile.getValue(20);
-                        int stone = 0;
-                        if (s4 != 0) {stone = s0 - s4;}
-                        if (stone == 10) {SystemIO.printString("stone stone stone stone stone stone stone stone stone stone\nstone stone stone stone stone stone stone stone stone stone\n\n\n");}
-                     }
+                     perform(Songbite.ROG, statement);
                   }
                }));
         instructionList.add(        // gilmie
@@ -499,31 +280,7 @@ public class PinkFloyd extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     Random r = new Random();
-                     int s0 = RegisterFile.getValue(16);
-                     int s2 = RegisterFile.getValue(18);
-                     int s3 = RegisterFile.getValue(19);
-                     int s5 = RegisterFile.getValue(21);
-                     int rog_lead = s2 - s3;
-
-                     if (rog_lead < 5 && s5 == 0) {
-                        s0++;
-                        s3++;
-                        RegisterFile.updateRegister(16, s0);
-                        RegisterFile.updateRegister(19, s3);
-
-                        int minute_max = r.nextInt(13) + 7;
-                        int m_rand = r.nextInt(minute_max);
-                        int s_rand = r.nextInt(59);
-
-                        SystemIO.printString("{" + m_rand + ":" + s_rand + "} GUITAR SOLO!!!\n");
-                        SystemIO.printString("\n\n\n");
-
-                        int s4 = RegisterFile.getValue(20);
-                        int stone = 0;
-                        if (s4 != 0) {stone = s0 - s4;}
-                        if (stone == 10) {SystemIO.printString("stone stone stone stone stone stone stone stone stone stone\nstone stone stone stone stone stone stone stone stone stone\n\n\n");}
-                     }
+                     perform(Songbite.GILMIE, statement);
                   }
                }));
         instructionList.add(        // money
@@ -535,21 +292,7 @@ public class PinkFloyd extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int s0 = RegisterFile.getValue(16);
-                     int s5 = RegisterFile.getValue(21);
-
-                     if (s5 == 0) {
-                        s0++;
-                        RegisterFile.updateRegister(16, s0);
-
-                        SystemIO.printString("*sick bass line intensifies*\n");
-                        SystemIO.printString("\n\n\n");
-
-                        int s4 = RegisterFile.getValue(20);
-                        int stone = 0;
-                        if (s4 != 0) {stone = s0 - s4;}
-                        if (stone == 10) {SystemIO.printString("stone stone stone stone stone stone stone stone stone stone\nstone stone stone stone stone stone stone stone stone stone\n\n\n");}
-                     }
+                     perform(Songbite.MONEY, statement);
                   }
                }));
         instructionList.add(        // quit
@@ -561,17 +304,7 @@ public class PinkFloyd extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int s0 = RegisterFile.getValue(16);
-                     s0++;
-                     RegisterFile.updateRegister(16, s0);
-
-                     SystemIO.printString("THE SHOW MUST GO ON!!!\n");
-                     SystemIO.printString("\n\n\n");
-
-                     int s4 = RegisterFile.getValue(20);
-                     int stone = 0;
-                     if (s4 != 0) {stone = s0 - s4;}
-                     if (stone == 10) {SystemIO.printString("stone stone stone stone stone stone stone stone stone stone\nstone stone stone stone stone stone stone stone stone stone\n\n\n");}
+                     perform(Songbite.QUIT, statement);
                   }
                }));
         instructionList.add(        // parry
@@ -583,21 +316,7 @@ public class PinkFloyd extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int s0 = RegisterFile.getValue(16);
-                     int s5 = RegisterFile.getValue(21);
-
-                     if (s5 == 0) {
-                        s0++;
-                        RegisterFile.updateRegister(16, s0);
-
-                        SystemIO.printString("*soulful sax solo subsumes*\n");
-                        SystemIO.printString("\n\n\n");
-
-                        int s4 = RegisterFile.getValue(20);
-                        int stone = 0;
-                        if (s4 != 0) {stone = s0 - s4;}
-                        if (stone == 10) {SystemIO.printString("stone stone stone stone stone stone stone stone stone stone\nstone stone stone stone stone stone stone stone stone stone\n\n\n");}
-                     }
+                     perform(Songbite.PARRY, statement);
                   }
                }));
         instructionList.add(        // dogs
@@ -609,32 +328,7 @@ public class PinkFloyd extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     Random r = new Random();
-                     int s0 = RegisterFile.getValue(16);
-                     int s5 = RegisterFile.getValue(21);
-
-                     if (s5 == 0) {
-                        s0++;
-                        RegisterFile.updateRegister(16, s0);
-
-                        SystemIO.printString("bark bark bark BAAARK\n");
-                        SystemIO.printString("\n");
-
-                        if (r.nextInt(11) == 1) {
-                            SystemIO.printString("I was in the kitchen\n");
-                            SystemIO.printString("Seamus, that's the dog was outside\n");
-                            SystemIO.printString("\n");
-                            SystemIO.printString("bark bark bark BAAARK\n");
-                            SystemIO.printString("\n");
-                        }
-
-                        SystemIO.printString("\n\n");
-
-                        int s4 = RegisterFile.getValue(20);
-                        int stone = 0;
-                        if (s4 != 0) {stone = s0 - s4;}
-                        if (stone == 10) {SystemIO.printString("stone stone stone stone stone stone stone stone stone stone\nstone stone stone stone stone stone stone stone stone stone\n\n\n");}
-                     }
+                     perform(Songbite.DOGS, statement);
                   }
                }));
         instructionList.add(        // pigs
@@ -646,27 +340,7 @@ public class PinkFloyd extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int s0 = RegisterFile.getValue(16);
-                     int s5 = RegisterFile.getValue(21);
-
-                     if (s5 == 0) {
-                        s0++;
-                        RegisterFile.updateRegister(16, s0);
-
-                        SystemIO.printString("You radiate cold shafts of broken glass!\n");
-                        SystemIO.printString("You're nearly a laugh, but you're really a cry\n");
-                        SystemIO.printString("\n");
-                        SystemIO.printString("HAHA!  CHARADE YOU ARE!\n");
-                        SystemIO.printString("\n");
-                        SystemIO.printString("You're trying to keep our feelings off the street!\n");
-                        SystemIO.printString("You're nearly a treat, but you're really a cry\n");
-                        SystemIO.printString("\n\n\n");
-
-                        int s4 = RegisterFile.getValue(20);
-                        int stone = 0;
-                        if (s4 != 0) {stone = s0 - s4;}
-                        if (stone == 10) {SystemIO.printString("stone stone stone stone stone stone stone stone stone stone\nstone stone stone stone stone stone stone stone stone stone\n\n\n");}
-                     }
+                     perform(Songbite.PIGS, statement);
                   }
                }));
         instructionList.add(        // wall
@@ -678,31 +352,7 @@ public class PinkFloyd extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int s0 = RegisterFile.getValue(16);
-                     int s5 = RegisterFile.getValue(21);
-                    
-                     switch(s5) {
-                        case 0:
-                            SystemIO.printString("What shall we sue to fill the empty spaces\n");
-                            SystemIO.printString("Where we used to talk?\n");
-                            SystemIO.printString("How shall I fill the final places?\n");
-                            SystemIO.printString("How shall I complete the wall?\n");
-                            break;
-                        case 1:
-                            SystemIO.printString("Mother did it need to be so high?\n");
-                            break;
-                     }
-                     s0++;
-                     s5 = 1;
-                     RegisterFile.updateRegister(16, s0);
-                     RegisterFile.updateRegister(21, s5);
-
-                     SystemIO.printString("\n\n\n");
-
-                     int s4 = RegisterFile.getValue(20);
-                     int stone = 0;
-                     if (s4 != 0) {stone = s0 - s4;}
-                     if (stone == 10) {SystemIO.printString("stone stone stone stone stone stone stone stone stone stone\nstone stone stone stone stone stone stone stone stone stone\n\n\n");}
+                     perform(Songbite.WALL, statement);
                   }
                }));
          instructionList.add(        // trial
@@ -714,50 +364,7 @@ public class PinkFloyd extends CustomAssembly{
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
-                     int s0 = RegisterFile.getValue(16);
-                     int s5 = RegisterFile.getValue(21);
-
-                     if (s5 == 1) {
-                        s0++;
-                        RegisterFile.updateRegister(16, s0);
-
-                        SystemIO.printString("Good morning, Worm, your honour\n");
-                        SystemIO.printString("The crown will plainly show the prisoner\n");
-                        SystemIO.printString("Who now stands before you\n");
-                        SystemIO.printString("Was caught red-handed, showing feelings\n");
-                        SystemIO.printString("Showing feelings of an almost human nature\n");
-                        SystemIO.printString("This will not do\n");
-                        SystemIO.printString("\n");
-                        SystemIO.printString("Crazy, toys in the attic, I am crazy\n");
-                        SystemIO.printString("Truly gone fishing\n");
-                        SystemIO.printString("They must have taken my marbles away\n");
-                        SystemIO.printString("Crazy, over the rainbow I am crazy\n");
-                        SystemIO.printString("Bars in the window\n");
-                        SystemIO.printString("There must have been a door there in the wall\n");
-                        SystemIO.printString("When I came in (crazy, over the rainbow he is crazy)\n");
-                        SystemIO.printString("\n");
-                        SystemIO.printString("The evidence before the court is incontrovertible\n");
-                        SystemIO.printString("There's no need for the jury to retire\n");
-                        SystemIO.printString("In all my years of judging, I have never heard before\n");
-                        SystemIO.printString("Of someone more deserving of the full penalty of the law\n");
-                        SystemIO.printString("The way you made them suffer, your exquisite wife and mother,\n");
-                        SystemIO.printString("Fills me with the urge to defecate\n");
-                        SystemIO.printString("(go on Judge, shit on him!)\n");
-                        SystemIO.printString("Since, my friend, you have revealed your deepest fear\n");
-                        SystemIO.printString("I sentence you to be exposed before your peers\n");
-                        for (int i = 1; i <= 10; i++) {
-                            SystemIO.printString("Tear down the wall!\n");
-                        }
-                        SystemIO.printString("\n\n\n");
-
-                        s5 = 0;
-                        RegisterFile.updateRegister(21, s5);
-
-                        int s4 = RegisterFile.getValue(20);
-                        int stone = 0;
-                        if (s4 != 0) {stone = s0 - s4;}
-                        if (stone == 10) {SystemIO.printString("stone stone stone stone stone stone stone stone stone stone\nstone stone stone stone stone stone stone stone stone stone\n\n\n");}
-                     }
+                     perform(Songbite.TRIAL, statement);
                   }
                }));
         instructionList.add(        // stone
@@ -766,31 +373,1304 @@ public class PinkFloyd extends CustomAssembly{
             	 BasicInstructionFormat.R_FORMAT,
                 "000000 00000 00000 00000 00000 101000",
                 new SimulationCode()
+               {
+                   public void simulate(ProgramStatement statement) throws ProcessingException
+                  {
+                     perform(Songbite.STONE, statement);
+                  }
+               }));
+        instructionList.add(        // spawn
+                new BasicInstruction("spawn", 
+            	 "Spawn : Hand the songbites up to the next spawn or join to another band member (in turn here, at once in band mode)",
+            	 BasicInstructionFormat.R_FORMAT,
+                "000000 00000 00000 00000 00000 110010",
+                new SimulationCode()
+               {
+                   public void simulate(ProgramStatement statement) throws ProcessingException
+                  {
+                     perform(Songbite.SPAWN, statement);
+                  }
+               }));
+        instructionList.add(        // join
+                new BasicInstruction("join", 
+            	 "Join : Wait for every spawned band member to finish their track",
+            	 BasicInstructionFormat.R_FORMAT,
+                "000000 00000 00000 00000 00000 110011",
+                new SimulationCode()
+               {
+                   public void simulate(ProgramStatement statement) throws ProcessingException
+                  {
+                     perform(Songbite.JOIN, statement);
+                  }
+               }));
+        instructionList.add(        // barrier
+                new BasicInstruction("barrier", 
+            	 "Barrier : Wait until every band member still playing has reached a barrier",
+            	 BasicInstructionFormat.R_FORMAT,
+                "000000 00000 00000 00000 00000 110100",
+                new SimulationCode()
+               {
+                   public void simulate(ProgramStatement statement) throws ProcessingException
+                  {
+                     perform(Songbite.BARRIER, statement);
+                  }
+               }));
+        instructionList.add(        // record
+                new BasicInstruction("record", 
+            	 "Record : Send the rest of the song straight to the file named by pinkfloyd.record (record again to stop). Before the first songbite ($s0 = 0) record always starts a fresh recording, so record twice there restarts it instead of stopping it. A recording a run left open is only closed once a later run reaches record or a songbite with $s0 lower than it was the last time the recording sang, so if nothing was sung after record, the next run can still end up in the old file",
+            	 BasicInstructionFormat.R_FORMAT,
+                "000000 00000 00000 00000 00000 110001",
+                new SimulationCode()
                {
                    public void simulate(ProgramStatement statement) throws ProcessingException
                   {
                      int s0 = RegisterFile.getValue(16);
-                     s0++;
-                     RegisterFile.updateRegister(16, s0);
-                     RegisterFile.updateRegister(20, s0);   // set $s4 to $s0 aka curr songbite count
-
-                     SystemIO.printString("Who was born in a house full of pain?\n");
-                     SystemIO.printString("Who was trained not to spit in the fan?\n");
-                     SystemIO.printString("Who was told what to do by the man?\n");
-                     SystemIO.printString("Who was broken by trained personnel?\n");
-                     SystemIO.printString("Who was fitted with collar and chain?\n");
-                     SystemIO.printString("Who was given a pat on the back?\n");
-                     SystemIO.printString("Who was breaking away from the pack?\n");
-                     SystemIO.printString("Who was only a stranger at home?\n");
-                     SystemIO.printString("Who was ground down in the end?\n");
-                     SystemIO.printString("Who was found dead on the phone?\n");
-                     SystemIO.printString("Who was dragged down by the stone?\n");
-                     SystemIO.printString("WHO WAS DRAGGED DOWN BY THE STONE?\n");
-                     SystemIO.printString("STONE STONE STONE STONE STONE STONE STONE STONE STONE STONE\n");
-                     SystemIO.printString("STONE STONE STONE STONE STONE STONE STONE STONE STONE STONE\n");
-                     SystemIO.printString("\n\n\n");
-                     
+                     try {
+                        closeStaleRecording(s0);
+                        if (recording != null && s0 == 0) {   // a new song, so whatever was open belongs to an old one
+                           Recording old = recording;
+                           recording = null;
+                           old.close();
+                        }
+                        if (recording == null) {
+                           recording = new Recording(System.getProperty("pinkfloyd.record", "PinkFloyd_song.txt"));
+                           recording.heard = s0;
+                        } else {
+                           Recording finished = recording;
+                           recording = null;
+                           finished.close();
+                        }
+                     } catch (IOException e) {
+                        throw new ProcessingException(statement, "could not record the song: " + e.getMessage());
+                     }
                   }
                }));
     }
-}
\ No newline at end of file
+
+    private static final String USAGE = "usage: PinkFloyd [pipe] | render song.asm song.txt | rerender song.asm song.txt"
+            + " | band song.asm song.txt | generate <songbites> song.asm | scale";
+
+    /**
+     * Live mode: plays songbites as they arrive, one per line, from a named pipe (or stdin when no path is given).
+     * It runs outside of MARS, so the song's counters live in a Song that carries over from line to line rather than
+     * in the register file, and nothing is kept per line, so a session can run forever. record works as it does in MARS.
+     * Run it with: java -cp Mars.jar:PinkFloyd.jar mars.mips.instructions.customlangs.PinkFloyd [pipe]
+     * The render, rerender, band, generate and scale modes are described on their own methods. Their names are
+     * always taken as modes, so a pipe with one of those names has to be given with a path, like ./render.
+     */
+    public static void main(String[] args) throws IOException {
+        String mode = args.length > 0 ? args[0] : "";
+        boolean twoFiles = mode.equals("render") || mode.equals("rerender") || mode.equals("band") || mode.equals("generate");
+        if (twoFiles ? args.length != 3 : mode.equals("scale") ? args.length != 1 : args.length > 1) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        if (mode.equals("render")) {
+            render(args[1], args[2]);
+            return;
+        }
+        if (mode.equals("rerender")) {
+            rerender(args[1], args[2]);
+            return;
+        }
+        if (mode.equals("band")) {
+            band(args[1], args[2]);
+            return;
+        }
+        if (mode.equals("generate")) {
+            int songbites = Integer.parseInt(args[1]);
+            if (songbites < 0) {   // checked before the song file is opened, so a bad count leaves it alone
+                throw new IllegalArgumentException("a song can't have " + songbites + " songbites");
+            }
+            Writer out = new OutputStreamWriter(new FileOutputStream(args[2]), StandardCharsets.UTF_8);
+            try {
+                generate(songbites, SYNTHETIC_SEED, out);
+            } finally {
+                out.close();
+            }
+            return;
+        }
+        if (mode.equals("scale")) {
+            if (!scale()) {System.exit(1);}
+            return;
+        }
+
+        InputStream in = args.length > 0 ? new FileInputStream(args[0]) : System.in;
+        BufferedReader live = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        Song song = new Song();
+        Random r = new Random();
+        Recording taping = null;
+        try {
+            String line;
+            while ((line = live.readLine()) != null) {
+                line = songbiteOn(line);
+                if (line.isEmpty()) {continue;}
+
+                try {
+                    if (line.equals("record")) {
+                        if (taping == null) {
+                            taping = new Recording(System.getProperty("pinkfloyd.record", "PinkFloyd_song.txt"));
+                        } else {
+                            Recording finished = taping;
+                            taping = null;
+                            finished.close();
+                        }
+                        continue;
+                    }
+                    Songbite songbite = Songbite.named(line);
+                    if (songbite == null) {
+                        System.err.println("not a songbite: " + line);
+                        continue;
+                    }
+                    songbite.perform(song, r, taping != null ? taping : STDOUT);
+                    System.out.flush();
+                } catch (IOException e) {
+                    System.err.println(line + ": " + e.getMessage());
+                }
+            }
+        } finally {
+            live.close();
+            if (taping != null) {
+                taping.close();
+            }
+        }
+    }
+
+    // Every lyric is UTF-8 encoded exactly once, when the class loads, so singing a verse never builds or transcodes a string
+    private static final Verse SILENCE = new Verse();
+    private static final Verse BREAK = new Verse("", "", "");
+    private static final Verse DOGS_BREAK = new Verse("", "");
+    private static final Verse STONE_ECHO = new Verse("stone stone stone stone stone stone stone stone stone stone",
+                                                      "stone stone stone stone stone stone stone stone stone stone",
+                                                      "", "");
+
+    private static final Verse[] SYD_EARLY = {
+            new Verse("I've got a bike, you can ride it if you like :)",
+                      "It's got a basket a bell that rings, and things to make it look good :)",
+                      "I'd give it to you if I could, but I borrowed it :)"),
+            new Verse("You're the kind of girl that fits in with my world",
+                      "I'll give you everything, anything if you want things"),
+            new Verse("I know a mouse and he hasn't got a house",
+                      "I don't know why I call him Gerald",
+                      "He's getting rather old, but he's a good mouse"),
+            new Verse("I really love you and I mean you",
+                      "The star above you, crystal blue",
+                      "I wouldn't see you, and I love to",
+                      "I fly above you, yes I do"),
+            new Verse("Lime and limpid green, a second scene, a fight between the blue you once knew",
+                      "Floating down, the sound resounds around the icy waters underground"),
+            new Verse("I want to tell you a story, about a little man, if i can",
+                      "A gnome named Grimble Crumble; And little gnomes stay in their homes",
+                      "He had a big adventure, amidst the grass, fresh air at last",
+                      "And then one day, Hooray!")
+    };
+
+    private static final Verse[] SYD_SHINE = {
+            new Verse("Remember when you were young?",
+                      "You shone like the sun",
+                      "Now there's a look in your eyes",
+                      "Like black holes in the sky"),
+            new Verse("You were caught in the crossfire, Of childhood and stardom",
+                      "Blown on the steel breeze",
+                      "Come on you target, for faraway laughter",
+                      "Come on you stranger, you legend, you martyr, and Shine!"),
+            new Verse("You reached for the secret too soon",
+                      "You cried for the moon",
+                      "Threatend by shadows at night",
+                      "And exposed in the light"),
+            new Verse("Well, you wore out your welcome, with random precision",
+                      "Rode on the steel breeze",
+                      "Come on you raver, you seer of visions,",
+                      "Come on you painter, you piper, you prisoner, and Shine!"),
+            new Verse("Nobody knows where you are, how near or how far"),
+            new Verse("Pile on many more layers, and I'll be joining you there"),
+            new Verse("And we'll bask in the shadow of yesterday's triumph",
+                      "Sail on the steel breeze",
+                      "Come on you boy child, you winner and loser",
+                      "Come on you miner for truth and delusion, and Shine!"),
+            new Verse("So, so you think you can tell",
+                      "Heaven from Hell?",
+                      "Blue skies from pain?",
+                      "Can you tell a green field,",
+                      "from a cold steel rail?",
+                      "A smile from a veil?",
+                      "Do you think you could tell?"),
+            new Verse("Did the get you to trade?",
+                      "Your heroes for ghosts?",
+                      "Hot ashes for trees?",
+                      "Hot air for a cool breeze?",
+                      "Cold comfort for change?",
+                      "Did you exchange?",
+                      "A walk on part in the war,",
+                      "For a lead role in a cage?"),
+            new Verse("We're just two lost souls swimming in a fishbowl,",
+                      "year after year,",
+                      "running over the same old ground,",
+                      "what have we found?",
+                      "The same old fears,",
+                      "Wish you were here.")
+    };
+
+    private static final Verse[] ROG_LYRICS = {
+            new Verse("Daddy's flown across the ocean",
+                      "Leaving just a memory",
+                      ""),
+            new Verse("A snapshot in the family album",
+                      "Daddy, what else did you leave for me?",
+                      ""),
+            new Verse("Daddy what'd ya leave behind for me?",
+                      ""),
+            new Verse("Overhead the albatross",
+                      "Hangs motionless upon the air",
+                      "And deep beneath the rolling waves",
+                      "In labyrinths of coral caves",
+                      "The echo of a distant time",
+                      "Comes willowing across the sand",
+                      "And everything is green and submarine"),
+            new Verse("Strangers passing in the street",
+                      "By chance, two separate glances meet",
+                      "And I am you and what I see is me",
+                      "And do I take you by the hand,",
+                      "And lead you through the land,",
+                      "And help me understand the best I can?"),
+            new Verse("Tired of lying in the sunshine",
+                      "Staying home to watch the rain",
+                      "You are young and life is long",
+                      "And there is time to kill today",
+                      "But then one day you find",
+                      "Ten years have got behind you",
+                      "No one told you when to run",
+                      "You missed the starting gun"),
+            new Verse("You gotta be crazy, you gotta have a real need",
+                      "Gotta sleep on your toes, and when you're on the street",
+                      "Got to be able to pick out the easy meat with your eyes closed",
+                      "Then moving in silently, downwind and out of sight",
+                      "You got to strike when the moment is right without thinking",
+                      "And after a while, you can work on points for style",
+                      "Like the club tie, and the firm handshake",
+                      "A certain look in the sky and an easy smile",
+                      "You have to be trusted by the people that you lie to",
+                      "So that when they turn their backs on you",
+                      "You get the chance to put the knife in"),
+            new Verse("And when you lose control",
+                      "You'll reap the harvet you have sown",
+                      "And as the fear grows",
+                      "The bad blood slows and turns to stone",
+                      "And it's too late to lose the weight",
+                      "You used to need to throw around",
+                      "So have a good drown, as you go down, all alone",
+                      "Dragged down by the stone"),
+            new Verse("For long you life and high you fly",
+                      "And smile you'll give and tears you'll cry",
+                      "And all you touch and all you see",
+                      "Is all your life will ever be",
+                      "",
+                      "Run, rabbit, run",
+                      "Dig that hole, forget the sun",
+                      "And when at last the work is done",
+                      "Don't sit down it's time to dig another one",
+                      "",
+                      "For long you life and high you fly",
+                      "But only if you ride the tide",
+                      "Balanced on the biggest wave",
+                      "You race towards an early grave"),
+            new Verse("Hey, you",
+                      "Out there on the road, always doing what you're told, can you help me?",
+                      "Hey, you",
+                      "Out there beyond the wall, breaking bottles in the hall, can you help me?",
+                      "Hey, you, don't tell me there's no hope at all",
+                      "Together we stand, divided we fall",
+                      "Hey, you, would you help me to carry the stone?",
+                      "Open your heart, I'm coming home"),
+            new Verse("Through the fisheyed lens of tear stained eyes",
+                      "I can barely make out the shape of this moment in time"),
+            new Verse("Harmlessly passing your time in the grassland away",
+                      "Only dimly aware of a certain unease in the air",
+                      "You better watch out! There may be dogs about!",
+                      "I've looked over Jordan and I've seen things are not what the seem",
+                      "",
+                      "What do you get for pretending the danger's not real?",
+                      "Meek and obedient you follow the leader",
+                      "Down well trodden corridors into the valley of steel",
+                      "",
+                      "What a suprise!",
+                      "A look of terminal shock in your eyes!",
+                      "Now things are really what they seem!",
+                      "No! This is no bad dream!")
+    };
+
+    private static final Verse MONEY_LYRICS = new Verse("*sick bass line intensifies*");
+
+    private static final Verse QUIT_LYRICS = new Verse("THE SHOW MUST GO ON!!!");
+
+    private static final Verse PARRY_LYRICS = new Verse("*soulful sax solo subsumes*");
+
+    private static final Verse BARK = new Verse("bark bark bark BAAARK",
+                                                "");
+
+    private static final Verse SEAMUS = new Verse("I was in the kitchen",
+                                                  "Seamus, that's the dog was outside",
+                                                  "",
+                                                  "bark bark bark BAAARK",
+                                                  "");
+
+    private static final Verse PIGS_LYRICS = new Verse("You radiate cold shafts of broken glass!",
+                                                       "You're nearly a laugh, but you're really a cry",
+                                                       "",
+                                                       "HAHA!  CHARADE YOU ARE!",
+                                                       "",
+                                                       "You're trying to keep our feelings off the street!",
+                                                       "You're nearly a treat, but you're really a cry");
+
+    private static final Verse WALL_BUILD = new Verse("What shall we sue to fill the empty spaces",
+                                                      "Where we used to talk?",
+                                                      "How shall I fill the final places?",
+                                                      "How shall I complete the wall?");
+
+    private static final Verse WALL_HIGH = new Verse("Mother did it need to be so high?");
+
+    private static final Verse TRIAL_LYRICS = new Verse("Good morning, Worm, your honour",
+                                                        "The crown will plainly show the prisoner",
+                                                        "Who now stands before you",
+                                                        "Was caught red-handed, showing feelings",
+                                                        "Showing feelings of an almost human nature",
+                                                        "This will not do",
+                                                        "",
+                                                        "Crazy, toys in the attic, I am crazy",
+                                                        "Truly gone fishing",
+                                                        "They must have taken my marbles away",
+                                                        "Crazy, over the rainbow I am crazy",
+                                                        "Bars in the window",
+                                                        "There must have been a door there in the wall",
+                                                        "When I came in (crazy, over the rainbow he is crazy)",
+                                                        "",
+                                                        "The evidence before the court is incontrovertible",
+                                                        "There's no need for the jury to retire",
+                                                        "In all my years of judging, I have never heard before",
+                                                        "Of someone more deserving of the full penalty of the law",
+                                                        "The way you made them suffer, your exquisite wife and mother,",
+                                                        "Fills me with the urge to defecate",
+                                                        "(go on Judge, shit on him!)",
+                                                        "Since, my friend, you have revealed your deepest fear",
+                                                        "I sentence you to be exposed before your peers",
+                                                        "Tear down the wall!",
+                                                        "Tear down the wall!",
+                                                        "Tear down the wall!",
+                                                        "Tear down the wall!",
+                                                        "Tear down the wall!",
+                                                        "Tear down the wall!",
+                                                        "Tear down the wall!",
+                                                        "Tear down the wall!",
+                                                        "Tear down the wall!",
+                                                        "Tear down the wall!");
+
+    private static final Verse STONE_LYRICS = new Verse("Who was born in a house full of pain?",
+                                                        "Who was trained not to spit in the fan?",
+                                                        "Who was told what to do by the man?",
+                                                        "Who was broken by trained personnel?",
+                                                        "Who was fitted with collar and chain?",
+                                                        "Who was given a pat on the back?",
+                                                        "Who was breaking away from the pack?",
+                                                        "Who was only a stranger at home?",
+                                                        "Who was ground down in the end?",
+                                                        "Who was found dead on the phone?",
+                                                        "Who was dragged down by the stone?",
+                                                        "WHO WAS DRAGGED DOWN BY THE STONE?",
+                                                        "STONE STONE STONE STONE STONE STONE STONE STONE STONE STONE",
+                                                        "STONE STONE STONE STONE STONE STONE STONE STONE STONE STONE");
+
+    // every {minutes:seconds} a gilmie solo can roll, so the guitar solos are encoded up front too
+    private static final Verse[][] SOLOS = new Verse[19][59];
+    static {
+        for (int m = 0; m < SOLOS.length; m++) {
+            for (int s = 0; s < SOLOS[m].length; s++) {
+                SOLOS[m][s] = new Verse("{" + m + ":" + s + "} GUITAR SOLO!!!");
+            }
+        }
+    }
+
+    /**
+     * Renders a straight-line song (songbites only, one per line) into a file, singing segments of it in parallel.
+     * Run it with: java -cp Mars.jar:PinkFloyd.jar mars.mips.instructions.customlangs.PinkFloyd render song.asm song.txt
+     */
+    private static void render(String songPath, String outPath) throws IOException {
+        Songbite[] song = readSong(songPath);
+        Recording out = new Recording(outPath);
+        try {
+            render(song, new Song(), Runtime.getRuntime().availableProcessors() * 4, out);
+        } finally {
+            out.close();
+        }
+    }
+
+    // strips a '#' comment and the surrounding whitespace from a line of a song
+    private static String songbiteOn(String line) {
+        int comment = line.indexOf('#');
+        if (comment >= 0) {line = line.substring(0, comment);}
+        return line.trim();
+    }
+
+    // reads a song made up only of songbites; anything else (labels, jumps, MIPS instructions) can't be split up
+    private static Songbite[] readSong(String path) throws IOException {
+        ArrayList<Songbite> song = new ArrayList<Songbite>();
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(path), StandardCharsets.UTF_8));
+        try {
+            String line;
+            int number = 0;
+            while ((line = in.readLine()) != null) {
+                number++;
+                line = songbiteOn(line);
+                if (line.isEmpty()) {continue;}
+                Songbite songbite = Songbite.named(line);
+                if (songbite == null) {
+                    throw new IOException(path + ":" + number + ": not a straight-line songbite: " + line);
+                }
+                song.add(songbite);
+            }
+        } finally {
+            in.close();
+        }
+        return song.toArray(new Songbite[song.size()]);
+    }
+
+    /**
+     * Sings a song in segments on every core and plays them to the stage in order. The only thing one songbite hands
+     * the next is the Song counters, so a scan that only plays the counters gives each segment its entry state up
+     * front. Each segment rolls its own random lyrics.
+     * @return the song's counters after its last songbite
+     */
+    private static Song render(final Songbite[] song, Song entry, int segments, Stage stage) throws IOException {
+        segments = Math.max(1, Math.min(segments, song.length));
+        final int length = (song.length + segments - 1) / segments;
+        Song scan = entry.copy();
+        ExecutorService band = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            ArrayList<Future<SetList>> sets = new ArrayList<Future<SetList>>();
+            for (int from = 0; from < song.length; from += length) {
+                final int to = Math.min(song.length, from + length);
+                final int start = from;
+                final Song state = scan.copy();
+                sets.add(band.submit(new Callable<SetList>() {
+                    public SetList call() throws IOException {
+                        SetList set = new SetList();
+                        Random r = new Random();
+                        for (int i = start; i < to; i++) {
+                            song[i].perform(state, r, set);
+                        }
+                        return set;
+                    }
+                }));
+                for (int i = from; i < to; i++) {
+                    song[i].play(scan);
+                }
+            }
+            playInOrder(sets, stage);
+        } finally {
+            band.shutdownNow();
+        }
+        return scan;
+    }
+
+    // plays each set list to the stage as soon as it and every set before it are done
+    private static void playInOrder(List<Future<SetList>> sets, Stage stage) throws IOException {
+        try {
+            for (Future<SetList> set : sets) {
+                set.get().playTo(stage);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("song interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("could not play the song", e.getCause());
+        }
+    }
+
+    /**
+     * Plays a song in band mode and writes it to a file. Everything after a spawn, up to the next spawn or join, is
+     * one member's track, and at the join every track of that ensemble plays at once on its own thread, with its own
+     * random lyrics. A barrier holds a member until every track still playing has reached one. The counters stay
+     * shared between members and each songbite's play is atomic on them, so the leads stay capped at 5 and nobody but
+     * rog is heard over the wall. Each track's verses come out together, in spawn order.
+     * Run it with: java -cp Mars.jar:PinkFloyd.jar mars.mips.instructions.customlangs.PinkFloyd band song.asm song.txt
+     */
+    private static void band(String songPath, String outPath) throws IOException {
+        Songbite[] song = readSong(songPath);
+        checkEnsembles(songPath, song);
+        Recording out = new Recording(outPath);
+        try {
+            band(song, new Song(), out);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static final int MAX_MEMBERS = 256;   // tracks in one ensemble, each of them gets its own thread
+
+    // every spawn needs a join after it, and an ensemble can't outgrow the band; checked before the output file is touched
+    private static void checkEnsembles(String path, Songbite[] song) throws IOException {
+        int spawned = -1;
+        int members = 0;
+        for (int i = 0; i < song.length; i++) {
+            if (song[i] == Songbite.SPAWN) {
+                if (spawned < 0) {spawned = i;}
+                members++;
+                if (members > MAX_MEMBERS) {
+                    throw new IOException(path + ": more than " + MAX_MEMBERS + " tracks in the ensemble spawned at songbite "
+                            + (spawned + 1));
+                }
+            }
+            if (song[i] == Songbite.JOIN) {
+                spawned = -1;
+                members = 0;
+            }
+        }
+        if (spawned >= 0) {
+            throw new IOException(path + ": spawn without a join (songbite " + (spawned + 1) + ")");
+        }
+    }
+
+    // the main track plays on this thread; each spawn...join ensemble gets a thread per member.
+    // The song must have passed checkEnsembles.
+    private static Song band(Songbite[] song, Song shared, Stage stage) throws IOException {
+        ExecutorService members = Executors.newCachedThreadPool();
+        try {
+            Random r = new Random();
+            int i = 0;
+            while (i < song.length) {
+                if (song[i] != Songbite.SPAWN) {
+                    song[i].perform(shared, r, stage);
+                    i++;
+                    continue;
+                }
+                ArrayList<int[]> tracks = new ArrayList<int[]>();
+                int start = i + 1;
+                for (i = start; i < song.length && song[i] != Songbite.JOIN; i++) {
+                    if (song[i] == Songbite.SPAWN) {
+                        tracks.add(new int[] {start, i});
+                        start = i + 1;
+                    }
+                }
+                tracks.add(new int[] {start, i});
+                i++;
+                ensemble(song, tracks, shared, members, stage);
+            }
+        } finally {
+            members.shutdownNow();
+        }
+        return shared;
+    }
+
+    private static void ensemble(final Songbite[] song, List<int[]> tracks, final Song shared,
+                                 ExecutorService members, Stage stage) throws IOException {
+        final Phaser barrier = new Phaser(tracks.size());
+        ArrayList<Future<SetList>> sets = new ArrayList<Future<SetList>>();
+        for (final int[] track : tracks) {
+            sets.add(members.submit(new Callable<SetList>() {
+                public SetList call() throws IOException {
+                    SetList set = new SetList();
+                    Random r = new Random();
+                    try {
+                        for (int i = track[0]; i < track[1]; i++) {
+                            if (song[i] == Songbite.BARRIER) {
+                                barrier.arriveAndAwaitAdvance();
+                            } else {
+                                song[i].performShared(shared, r, set);
+                            }
+                        }
+                    } finally {
+                        barrier.arriveAndDeregister();   // a finished member never holds the others up
+                    }
+                    return set;
+                }
+            }));
+        }
+        playInOrder(sets, stage);
+    }
+
+    /**
+     * Renders a song into a file, reusing as much of the last render of it as an edit allows. Each render leaves
+     * a .checkpoints file next to the output holding the songbites it sang and, every pinkfloyd.checkpoint songbites
+     * (1024 by default), the song's counters and how far into the output it had got. The next run finds the first
+     * songbite that changed, cuts the output back to the last checkpoint before it and only sings from there on.
+     * Run it with: java -cp Mars.jar:PinkFloyd.jar mars.mips.instructions.customlangs.PinkFloyd rerender song.asm song.txt
+     */
+    private static void rerender(String songPath, String outPath) throws IOException {
+        Songbite[] song = readSong(songPath);
+        int interval = Integer.getInteger("pinkfloyd.checkpoint", 1024);
+        if (interval <= 0) {
+            throw new IllegalArgumentException("pinkfloyd.checkpoint must be a positive number of songbites, not " + interval);
+        }
+        File sheet = new File(outPath + ".checkpoints");
+        Checkpoints last = Checkpoints.read(sheet, interval, new File(outPath).length());
+        Checkpoints now = new Checkpoints(song, interval);
+
+        int from = 0;
+        Song state = new Song();
+        long offset = 0;
+        if (last != null && song.length > 0) {
+            int changed = last.firstChange(song);
+            if (changed == song.length && changed == last.song.length) {return;}
+            // a checkpoint only ever sits before a songbite of the song, so one at its very end is dropped
+            int kept = Math.min(Math.min(changed, song.length - 1) / interval, last.states.size() - 1);
+            for (int k = 0; k <= kept; k++) {
+                now.states.add(last.states.get(k));
+                now.offsets.add(last.offsets.get(k));
+            }
+            from = kept * interval;
+            state = last.states.get(kept).copy();
+            offset = last.offsets.get(kept);
+        }
+
+        sheet.delete();   // stale from here on, until this render finishes
+        Recording out = new Recording(outPath, offset);
+        try {
+            Random r = new Random();
+            for (int i = from; i < song.length; i++) {
+                if (i % interval == 0 && i / interval == now.states.size()) {
+                    now.states.add(state.copy());
+                    now.offsets.add(out.length());
+                }
+                song[i].perform(state, r, out);
+            }
+        } finally {
+            out.close();
+        }
+        now.write(sheet, out.length());
+    }
+
+    /**
+     * What a render of a song leaves behind for the next one: the songbites it sang, and the song's counters and
+     * output offset before every interval-th songbite.
+     */
+    private static final class Checkpoints {
+        private static final int MAGIC = 0x50465332;   // "PFS2", followed by a CRC32 of everything before it at the end
+        final Songbite[] song;
+        final int interval;
+        final ArrayList<Song> states = new ArrayList<Song>();
+        final ArrayList<Long> offsets = new ArrayList<Long>();
+
+        Checkpoints(Songbite[] song, int interval) {
+            this.song = song;
+            this.interval = interval;
+        }
+
+        // the index of the first songbite where the two songs differ
+        int firstChange(Songbite[] edited) {
+            int i = 0;
+            while (i < song.length && i < edited.length && song[i] == edited[i]) {i++;}
+            return i;
+        }
+
+        /**
+         * Reads the sheet a render left behind. Returns null (so the song is rendered in full) when there is no sheet,
+         * it doesn't match the interval or the output it was written for, or it is corrupt or not a sheet at all.
+         */
+        static Checkpoints read(File sheet, int interval, long outputLength) throws IOException {
+            if (!sheet.isFile()) {return null;}
+            byte[] bytes = Files.readAllBytes(sheet.toPath());
+            if (bytes.length < 8) {return null;}
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, bytes.length - 8);
+            if (crc.getValue() != ByteBuffer.wrap(bytes, bytes.length - 8, 8).getLong()) {return null;}
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 8));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != interval || in.readLong() != outputLength) {return null;}
+                Songbite[] all = Songbite.values();
+                int length = in.readInt();
+                if (length < 0 || length > bytes.length) {return null;}   // one byte per songbite
+                Songbite[] song = new Songbite[length];
+                for (int i = 0; i < song.length; i++) {
+                    int ordinal = in.readUnsignedByte();
+                    if (ordinal >= all.length) {return null;}
+                    song[i] = all[ordinal];
+                }
+                Checkpoints checkpoints = new Checkpoints(song, interval);
+                int count = in.readInt();
+                if (count != (length + (long) interval - 1) / interval) {return null;}   // one before every interval-th songbite
+                long previous = 0;
+                for (int k = 0; k < count; k++) {
+                    Song state = new Song();
+                    state.songbites = in.readInt();
+                    state.syd = in.readInt();
+                    state.rog = in.readInt();
+                    state.gilmie = in.readInt();
+                    state.stone = in.readInt();
+                    state.wall = in.readInt();
+                    long offset = in.readLong();
+                    if (offset < previous || offset > outputLength || (k == 0 && offset != 0)) {return null;}
+                    previous = offset;
+                    checkpoints.states.add(state);
+                    checkpoints.offsets.add(offset);
+                }
+                return count > 0 ? checkpoints : null;
+            } catch (EOFException e) {
+                return null;
+            } finally {
+                in.close();
+            }
+        }
+
+        void write(File sheet, long outputLength) throws IOException {
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(
+                    new CheckedOutputStream(new BufferedOutputStream(new FileOutputStream(sheet)), crc));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(interval);
+                out.writeLong(outputLength);
+                out.writeInt(song.length);
+                for (Songbite songbite : song) {
+                    out.writeByte(songbite.ordinal());
+                }
+                out.writeInt(states.size());
+                for (int k = 0; k < states.size(); k++) {
+                    Song state = states.get(k);
+                    out.writeInt(state.songbites);
+                    out.writeInt(state.syd);
+                    out.writeInt(state.rog);
+                    out.writeInt(state.gilmie);
+                    out.writeInt(state.stone);
+                    out.writeInt(state.wall);
+                    out.writeLong(offsets.get(k));
+                }
+                out.writeLong(crc.getValue());   // taken before these last 8 bytes go through the checksum
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    private static final long SYNTHETIC_SEED = 1977;   // Animals
+    private static final long SCALE_FLOOR_MS = 50;     // below these a scale measurement is mostly noise
+    private static final long SCALE_FLOOR_MB = 32;
+
+    /**
+     * Writes a synthetic straight-line song of exactly the given number of songbites, one per line. It mixes every
+     * songbite, drops a stone marker every so often and puts rog behind his wall between wall/trial pairs.
+     * Run it with: java -cp Mars.jar:PinkFloyd.jar mars.mips.instructions.customlangs.PinkFloyd generate 1000000 song.asm
+     */
+    private static void generate(int songbites, long seed, Writer out) throws IOException {
+        Songbite[] mix = {Songbite.SYD, Songbite.ROG, Songbite.GILMIE, Songbite.MONEY, Songbite.QUIT,
+                          Songbite.PARRY, Songbite.DOGS, Songbite.PIGS};
+        Random r = new Random(seed);
+        BufferedWriter song = new BufferedWriter(out);
+        int written = 0;
+        while (written < songbites) {
+            int left = songbites - written;
+            int pick = r.nextInt(20);
+            if (pick == 0) {
+                song.write(Songbite.STONE.mnemonic);
+                song.newLine();
+                written++;
+            } else if (pick == 1 && left >= 3) {
+                int walled = Math.min(left - 2, 1 + r.nextInt(4));
+                song.write(Songbite.WALL.mnemonic);
+                song.newLine();
+                for (int i = 0; i < walled; i++) {
+                    song.write(mix[r.nextInt(mix.length)].mnemonic);
+                    song.newLine();
+                }
+                song.write(Songbite.TRIAL.mnemonic);
+                song.newLine();
+                written += walled + 2;
+            } else {
+                song.write(mix[r.nextInt(mix.length)].mnemonic);
+                song.newLine();
+                written++;
+            }
+        }
+        song.flush();
+    }
+
+    /**
+     * Runs synthetic songs of 10^3 up to pinkfloyd.scale.max songbites (10^7 by default, at most Integer.MAX_VALUE) through the songbite parser
+     * that render uses (not the MARS assembler, which the plugin can't drive on its own) and a render, and prints how
+     * long each took and the peak heap it needed. The text segment size is worked out, not measured: every songbite
+     * assembles to one 4-byte word.
+     * A size fails if it goes over pinkfloyd.scale.ms milliseconds or pinkfloyd.scale.mb megabytes of heap, or if
+     * going 10x bigger costs more than 10^pinkfloyd.scale.complexity times as much (1.2, a little worse than linear).
+     * Run it with: java -cp Mars.jar:PinkFloyd.jar mars.mips.instructions.customlangs.PinkFloyd scale
+     * @return whether every size stayed within its budget
+     */
+    private static boolean scale() throws IOException {
+        long max = Long.getLong("pinkfloyd.scale.max", 10000000L);
+        if (max > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("pinkfloyd.scale.max can be at most " + Integer.MAX_VALUE + " songbites, not " + max);
+        }
+        double complexity = Double.parseDouble(System.getProperty("pinkfloyd.scale.complexity", "1.2"));
+        long budget_ms = Long.getLong("pinkfloyd.scale.ms", 60000L);
+        long budget_mb = Long.getLong("pinkfloyd.scale.mb", 2048L);
+        double growth_max = Math.pow(10, complexity);
+
+        Stage nowhere = new Stage() {
+            public void sing(Verse... verses) {}
+        };
+        boolean ok = true;
+        long[] last = null;
+        System.out.println("parse = reading the straight-line song as render does, not MARS assembly;"
+                + " text bytes = 4 per songbite, derived, not measured");
+        System.out.println("songbites      parse ms   text bytes   render ms   peak heap MB");
+        for (long songbites = 1000; songbites <= max; songbites *= 10) {
+            File file = File.createTempFile("PinkFloyd_scale", ".asm");
+            try {
+                Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+                try {
+                    generate((int) songbites, SYNTHETIC_SEED, out);
+                } finally {
+                    out.close();
+                }
+
+                System.gc();
+                for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                    pool.resetPeakUsage();
+                }
+                long start = System.nanoTime();
+                Songbite[] song = readSong(file.getPath());
+                long parse_ms = (System.nanoTime() - start) / 1000000;
+                long text_bytes = 4L * song.length;   // every songbite assembles to one R-format word
+                start = System.nanoTime();
+                render(song, new Song(), Runtime.getRuntime().availableProcessors() * 4, nowhere);
+                long render_ms = (System.nanoTime() - start) / 1000000;
+                long peak_mb = 0;
+                for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                    if (pool.getType() == MemoryType.HEAP) {peak_mb += pool.getPeakUsage().getUsed();}
+                }
+                peak_mb /= 1024 * 1024;
+                System.out.println(String.format("%9d   %11d   %10d   %9d   %12d",
+                        songbites, parse_ms, text_bytes, render_ms, peak_mb));
+
+                long[] now = {parse_ms, render_ms, peak_mb};
+                String[] what = {"parse", "render", "peak heap"};
+                long[] floor = {SCALE_FLOOR_MS, SCALE_FLOOR_MS, SCALE_FLOOR_MB};
+                long[] budget = {budget_ms, budget_ms, budget_mb};
+                for (int i = 0; i < now.length; i++) {
+                    if (now[i] > budget[i]) {
+                        System.out.println("  FAIL: " + what[i] + " " + now[i] + " is over its budget of " + budget[i]);
+                        ok = false;
+                    }
+                    // growth only counts once the smaller measurement is above the noise floor
+                    if (last != null && last[i] >= floor[i] && now[i] > last[i] * growth_max) {
+                        System.out.println("  FAIL: " + what[i] + " grew " + String.format("%.1f", (double) now[i] / last[i])
+                                + "x for 10x the songbites, more than 10^" + complexity);
+                        ok = false;
+                    }
+                }
+                last = now;
+            } finally {
+                file.delete();
+            }
+        }
+        return ok;
+    }
+
+    // plays a songbite against the $s registers MARS keeps the song in
+    private static void perform(Songbite songbite, ProgramStatement statement) throws ProcessingException {
+        Song song = Song.fromRegisters();
+        try {
+            closeStaleRecording(song.songbites);
+            songbite.perform(song, new Random(), stage());
+            if (recording != null) {recording.heard = song.songbites;}
+        } catch (IOException e) {
+            throw new ProcessingException(statement, "could not record the song: " + e.getMessage());
+        } finally {
+            song.toRegisters();
+        }
+    }
+
+    /**
+     * The songbites. Each is split into play, which moves the song's counters along and says which part (if any) is
+     * heard, and sing, which picks the lyrics for that part. Working out the state of a song only needs play.
+     */
+    private enum Songbite {
+        SYD {
+            int play(Song song) {
+                if (song.wall != 0) {return SILENT;}
+                int part = song.syd < 2 ? 0 : 1;
+                song.songbites++;
+                song.syd++;
+                return part;
+            }
+
+            void sing(int part, Random r, Stage stage, Verse echo) throws IOException {
+                Verse[] lyrics = part == 0 ? SYD_EARLY : SYD_SHINE;
+                stage.sing(lyrics[r.nextInt(lyrics.length)], BREAK, echo);
+            }
+        },
+        ROG {
+            int play(Song song) {
+                int gilmie_lead = song.gilmie - song.rog;
+                if (gilmie_lead >= 5) {return SILENT;}
+                song.songbites++;
+                song.rog++;
+                return 0;
+            }
+
+            void sing(int part, Random r, Stage stage, Verse echo) throws IOException {
+                stage.sing(ROG_LYRICS[r.nextInt(ROG_LYRICS.length)], BREAK, echo);
+            }
+        },
+        GILMIE {
+            int play(Song song) {
+                int rog_lead = song.rog - song.gilmie;
+                if (rog_lead >= 5 || song.wall != 0) {return SILENT;}
+                song.songbites++;
+                song.gilmie++;
+                return 0;
+            }
+
+            void sing(int part, Random r, Stage stage, Verse echo) throws IOException {
+                int minute_max = r.nextInt(13) + 7;
+                int m_rand = r.nextInt(minute_max);
+                int s_rand = r.nextInt(59);
+                stage.sing(SOLOS[m_rand][s_rand], BREAK, echo);
+            }
+        },
+        MONEY {
+            int play(Song song) {
+                return playUnlessWalled(song);
+            }
+
+            void sing(int part, Random r, Stage stage, Verse echo) throws IOException {
+                stage.sing(MONEY_LYRICS, BREAK, echo);
+            }
+        },
+        QUIT {
+            int play(Song song) {
+                song.songbites++;
+                return 0;
+            }
+
+            void sing(int part, Random r, Stage stage, Verse echo) throws IOException {
+                stage.sing(QUIT_LYRICS, BREAK, echo);
+            }
+        },
+        PARRY {
+            int play(Song song) {
+                return playUnlessWalled(song);
+            }
+
+            void sing(int part, Random r, Stage stage, Verse echo) throws IOException {
+                stage.sing(PARRY_LYRICS, BREAK, echo);
+            }
+        },
+        DOGS {
+            int play(Song song) {
+                return playUnlessWalled(song);
+            }
+
+            void sing(int part, Random r, Stage stage, Verse echo) throws IOException {
+                Verse seamus = SILENCE;
+                if (r.nextInt(11) == 1) {
+                    seamus = SEAMUS;
+                }
+                stage.sing(BARK, seamus, DOGS_BREAK, echo);
+            }
+        },
+        PIGS {
+            int play(Song song) {
+                return playUnlessWalled(song);
+            }
+
+            void sing(int part, Random r, Stage stage, Verse echo) throws IOException {
+                stage.sing(PIGS_LYRICS, BREAK, echo);
+            }
+        },
+        WALL {
+            int play(Song song) {
+                int part = song.wall == 0 || song.wall == 1 ? song.wall : 2;
+                song.songbites++;
+                song.wall = 1;
+                return part;
+            }
+
+            void sing(int part, Random r, Stage stage, Verse echo) throws IOException {
+                Verse lyrics = SILENCE;
+                switch(part) {
+                    case 0:
+                        lyrics = WALL_BUILD;
+                        break;
+                    case 1:
+                        lyrics = WALL_HIGH;
+                        break;
+                }
+                stage.sing(lyrics, BREAK, echo);
+            }
+        },
+        TRIAL {
+            int play(Song song) {
+                if (song.wall != 1) {return SILENT;}
+                song.songbites++;
+                song.wall = 0;
+                return 0;
+            }
+
+            void sing(int part, Random r, Stage stage, Verse echo) throws IOException {
+                stage.sing(TRIAL_LYRICS, BREAK, echo);
+            }
+        },
+        STONE {
+            int play(Song song) {
+                song.songbites++;
+                song.stone = song.songbites;
+                return 0;
+            }
+
+            void sing(int part, Random r, Stage stage, Verse echo) throws IOException {
+                stage.sing(STONE_LYRICS, BREAK);
+            }
+        },
+        // spawn, join and barrier are cues for band mode; played on their own they don't make a sound
+        SPAWN {
+            int play(Song song) {return SILENT;}
+
+            void sing(int part, Random r, Stage stage, Verse echo) {}
+        },
+        JOIN {
+            int play(Song song) {return SILENT;}
+
+            void sing(int part, Random r, Stage stage, Verse echo) {}
+        },
+        BARRIER {
+            int play(Song song) {return SILENT;}
+
+            void sing(int part, Random r, Stage stage, Verse echo) {}
+        };
+
+        static final int SILENT = -1;
+
+        final String mnemonic = name().toLowerCase(Locale.ROOT);
+
+        // moves the song's counters past this songbite and returns the part to sing, or SILENT if nobody hears it
+        abstract int play(Song song);
+
+        abstract void sing(int part, Random r, Stage stage, Verse echo) throws IOException;
+
+        final void perform(Song song, Random r, Stage stage) throws IOException {
+            int part = play(song);
+            if (part != SILENT) {
+                sing(part, r, stage, song.echo());
+            }
+        }
+
+        // as perform, for a song other members are playing at the same time: only the counters are locked, not the singing
+        final void performShared(Song shared, Random r, Stage stage) throws IOException {
+            int part;
+            Verse echo;
+            synchronized (shared) {
+                part = play(shared);
+                echo = shared.echo();
+            }
+            if (part != SILENT) {
+                sing(part, r, stage, echo);
+            }
+        }
+
+        // money, parry, dogs and pigs can't be heard over the wall
+        static int playUnlessWalled(Song song) {
+            if (song.wall != 0) {return SILENT;}
+            song.songbites++;
+            return 0;
+        }
+
+        static Songbite named(String mnemonic) {
+            for (Songbite songbite : values()) {
+                if (songbite.mnemonic.equals(mnemonic)) {return songbite;}
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The counters a song carries from one songbite to the next. MARS keeps them in $s0-$s5.
+     */
+    private static final class Song {
+        int songbites;   // $s0
+        int syd;         // $s1
+        int rog;         // $s2
+        int gilmie;      // $s3
+        int stone;       // $s4, the songbite count at the last stone
+        int wall;        // $s5, 1 while rog's wall is up
+
+        static Song fromRegisters() {
+            Song song = new Song();
+            song.songbites = RegisterFile.getValue(16);
+            song.syd = RegisterFile.getValue(17);
+            song.rog = RegisterFile.getValue(18);
+            song.gilmie = RegisterFile.getValue(19);
+            song.stone = RegisterFile.getValue(20);
+            song.wall = RegisterFile.getValue(21);
+            return song;
+        }
+
+        // only touches the registers that changed, so MARS doesn't highlight (or back step) the others
+        void toRegisters() {
+            update(16, songbites);
+            update(17, syd);
+            update(18, rog);
+            update(19, gilmie);
+            update(20, stone);
+            update(21, wall);
+        }
+
+        private static void update(int register, int value) {
+            if (RegisterFile.getValue(register) != value) {
+                RegisterFile.updateRegister(register, value);
+            }
+        }
+
+        Song copy() {
+            Song song = new Song();
+            song.songbites = songbites;
+            song.syd = syd;
+            song.rog = rog;
+            song.gilmie = gilmie;
+            song.stone = stone;
+            song.wall = wall;
+            return song;
+        }
+
+        // the stone comes back around exactly 10 songbites after the last stone
+        Verse echo() {
+            int stoned = 0;
+            if (stone != 0) {stoned = songbites - stone;}
+            return stoned == 10 ? STONE_ECHO : SILENCE;
+        }
+    }
+
+    /**
+     * Somewhere the band can sing to.
+     */
+    private interface Stage {
+        void sing(Verse... verses) throws IOException;
+    }
+
+    private static final Stage CONSOLE = new Stage() {
+        public void sing(Verse... verses) {
+            for (Verse verse : verses) {
+                SystemIO.printString(verse.text);
+            }
+        }
+    };
+
+    // live mode runs outside of MARS, so it sings to stdout itself
+    private static final Stage STDOUT = new Stage() {
+        public void sing(Verse... verses) {
+            for (Verse verse : verses) {
+                System.out.print(verse.text);
+            }
+        }
+    };
+
+    // the file the record songbite is sending the song to, or null while singing to the MARS console
+    private static Recording recording;
+
+    /**
+     * MARS has no hook for the end of a run, so a recording a program never stopped would swallow every later run.
+     * $s0 only ever counts up during a song, so seeing it lower than the recording last heard means the registers
+     * were reset for a new run, and the old recording gets closed. This is a guess, not a run boundary: if the run
+     * that left the recording open sang nothing after record, heard is still what $s0 was then (often 0), and the
+     * next run sings into the old file until record starts a new one.
+     */
+    private static void closeStaleRecording(int s0) throws IOException {
+        if (recording != null && s0 < recording.heard) {
+            Recording stale = recording;
+            recording = null;
+            stale.close();
+        }
+    }
+
+    private static Stage stage() {
+        return recording != null ? recording : CONSOLE;
+    }
+
+    /**
+     * A song going straight into a file. Every sing is one gathering write of the verses' pre-encoded bytes.
+     */
+    private static final class Recording implements Stage {
+        private final FileChannel channel;
+        int heard;   // $s0 the last time a MARS run sang into this recording
+
+        private long length;
+
+        Recording(String path) throws IOException {
+            this(path, 0);
+        }
+
+        // keeps the first resumeAt bytes already in the file and carries on singing after them
+        Recording(String path, long resumeAt) throws IOException {
+            channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            channel.truncate(resumeAt);
+            channel.position(resumeAt);
+            length = resumeAt;
+        }
+
+        public void sing(Verse... verses) throws IOException {
+            ByteBuffer[] buffers = new ByteBuffer[verses.length];
+            long remaining = 0;
+            for (int i = 0; i < verses.length; i++) {
+                buffers[i] = verses[i].bytes();
+                remaining += buffers[i].remaining();
+            }
+            length += remaining;
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+        }
+
+        // how many bytes of song the file holds so far
+        long length() {
+            return length;
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * The verses one segment of a song sang, kept in order until the segments before it have been played.
+     */
+    private static final class SetList implements Stage {
+        private static final int GATHER = 512;   // verses per write when the set is played
+        private final ArrayList<Verse> verses = new ArrayList<Verse>();
+
+        public void sing(Verse... sung) {
+            for (Verse verse : sung) {
+                if (verse != SILENCE) {verses.add(verse);}
+            }
+        }
+
+        void playTo(Stage stage) throws IOException {
+            for (int from = 0; from < verses.size(); from += GATHER) {
+                List<Verse> batch = verses.subList(from, Math.min(verses.size(), from + GATHER));
+                stage.sing(batch.toArray(new Verse[batch.size()]));
+            }
+        }
+    }
+
+    /**
+     * A block of lyric lines, each ending in a newline, kept both as text for the console and as a
+     * read-only direct buffer of its UTF-8 bytes for recording.
+     */
+    private static final class Verse {
+        final String text;
+        private final ByteBuffer encoded;
+
+        Verse(String... lines) {
+            StringBuilder sb = new StringBuilder();
+            for (String line : lines) {
+                sb.append(line).append('\n');
+            }
+            text = sb.toString();
+            byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(utf8.length);
+            buffer.put(utf8).flip();
+            encoded = buffer.asReadOnlyBuffer();
+        }
+
+        // each write gets its own position and limit, so the encoded bytes can be shared freely
+        ByteBuffer bytes() {
+            return encoded.duplicate();
+        }
+    }
+}